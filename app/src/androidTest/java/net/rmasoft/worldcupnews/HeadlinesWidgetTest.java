@@ -0,0 +1,66 @@
+package net.rmasoft.worldcupnews;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.os.Debug;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Measures a full widget render on a device, from reading the snapshot file to pushing the views.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HeadlinesWidgetTest {
+
+    private static final String LOG_TAG = HeadlinesWidgetTest.class.getName();
+
+    /** Bytes a render may allocate, the views, intents and a buffered read of a small file */
+    private static final int MAX_RENDER_ALLOCATION = 256 * 1024;
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void renderLatencyAndAllocation() {
+        Context context = InstrumentationRegistry.getTargetContext();
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < ArticleSnapshot.MAX_HEADLINES; i++) {
+            articles.add(new Article("World Cup headline " + i, "Football", "2018-07-15T18:00:00Z",
+                    "Not Available", "https://www.theguardian.com/football/2018/jul/15/article-" + i));
+        }
+        ArticleSnapshot.save(context, articles);
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+
+        // Instrumented tests do not run on the main thread, like the widget's executor
+        assertNotSame(Looper.getMainLooper(), Looper.myLooper());
+        ArticleSnapshot.CACHE.evict();
+        HeadlinesWidget.render(context, appWidgetManager, new int[0]);
+
+        // Drop the in memory copy so the measured render reads the file, as after a trim
+        ArticleSnapshot.CACHE.evict();
+        assertEquals(0, ArticleSnapshot.CACHE.getSizeInBytes());
+
+        Debug.resetThreadAllocCount();
+        Debug.startAllocCounting();
+        long start = SystemClock.uptimeMillis();
+        HeadlinesWidget.render(context, appWidgetManager, new int[0]);
+        long renderMillis = SystemClock.uptimeMillis() - start;
+        Debug.stopAllocCounting();
+        int allocatedBytes = Debug.getThreadAllocSize();
+        Log.i(LOG_TAG, "Widget render took " + renderMillis + "ms, " + Debug.getThreadAllocCount()
+                + " allocations, " + allocatedBytes + " bytes");
+
+        // The render read the file back
+        assertTrue(ArticleSnapshot.CACHE.getSizeInBytes() > 0);
+        assertTrue("Render allocated " + allocatedBytes + " bytes", allocatedBytes < MAX_RENDER_ALLOCATION);
+    }
+}
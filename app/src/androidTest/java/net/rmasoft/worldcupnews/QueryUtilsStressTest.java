@@ -0,0 +1,190 @@
+package net.rmasoft.worldcupnews;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds the streaming parser huge, cut, corrupted and incomplete responses.
+ * Runs on a device because android.util.JsonReader is only a stub in local unit tests.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryUtilsStressTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int HUGE_BODY_BYTES = 50 * 1024 * 1024;
+    private static final int MAX_ARTICLES = 200;
+    private static final int MAX_RESPONSE_BYTES = 1024 * 1024;
+
+    private static final String HEADER = "{\"response\":{\"status\":\"ok\",\"total\":100000,\"results\":[";
+    private static final String FOOTER = "]}}";
+
+    @Test
+    public void hugeBodyStopsAtArticleCap() throws IOException {
+        GeneratedBody body = new GeneratedBody(HUGE_BODY_BYTES);
+        QueryUtils.Result result = QueryUtils.extractArticlesFromJson(body, MAX_ARTICLES, MAX_RESPONSE_BYTES);
+
+        assertEquals(MAX_ARTICLES, result.articles.size());
+        assertTrue(result.partial);
+        // A clean stop, the connection can be drained and reused
+        assertFalse(result.failed);
+        assertTrue("Read " + body.mRead + " bytes", body.mRead <= MAX_RESPONSE_BYTES);
+    }
+
+    @Test
+    public void hugeBodyStopsAtByteCap() throws IOException {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        GeneratedBody body = new GeneratedBody(HUGE_BODY_BYTES);
+        QueryUtils.Result result = QueryUtils.extractArticlesFromJson(body, Integer.MAX_VALUE, MAX_RESPONSE_BYTES);
+
+        runtime.gc();
+        long heapGrowth = runtime.totalMemory() - runtime.freeMemory() - heapBefore;
+
+        assertTrue(result.partial);
+        assertTrue(result.failed);
+        assertFalse(result.articles.isEmpty());
+        // Only the capped part of the body was read, and it didn't pile up in the heap
+        assertTrue("Read " + body.mRead + " bytes", body.mRead <= MAX_RESPONSE_BYTES + 64 * 1024);
+        assertTrue("Heap grew by " + heapGrowth + " bytes", heapGrowth < 4 * MAX_RESPONSE_BYTES);
+    }
+
+    @Test
+    public void truncatedBodyKeepsParsedArticles() {
+        String json = HEADER + article(0) + "," + article(1) + "," + article(2);
+        json = json.substring(0, json.length() - 20);
+
+        QueryUtils.Result result = parse(json);
+
+        assertEquals(2, result.articles.size());
+        assertTrue(result.partial);
+        assertTrue(result.failed);
+    }
+
+    @Test
+    public void corruptedBodyKeepsParsedArticles() {
+        String json = HEADER + article(0) + "," + article(1) + ",{\"webTitle\":\u0000ÿ}}]" + article(3) + FOOTER;
+
+        QueryUtils.Result result = parse(json);
+
+        assertEquals(2, result.articles.size());
+        assertTrue(result.partial);
+        assertTrue(result.failed);
+    }
+
+    @Test
+    public void articlesWithMissingFieldsAreSkipped() {
+        String incomplete = "{\"webTitle\":\"No URL\",\"sectionName\":\"Football\","
+                + "\"webPublicationDate\":\"2018-07-15T18:00:00Z\",\"webUrl\":null}";
+        String json = HEADER + article(0) + "," + incomplete + "," + article(2) + FOOTER;
+
+        QueryUtils.Result result = parse(json);
+
+        assertEquals(2, result.articles.size());
+        assertTrue(result.partial);
+        assertFalse(result.failed);
+    }
+
+    @Test
+    public void resetConnectionKeepsParsedArticles() {
+        InputStream reset = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        };
+        InputStream body = new SequenceInputStream(
+                new ByteArrayInputStream((HEADER + article(0) + "," + article(1) + ",").getBytes(UTF_8)), reset);
+
+        QueryUtils.Result result = QueryUtils.extractArticlesFromJson(body, MAX_ARTICLES, MAX_RESPONSE_BYTES);
+
+        assertEquals(2, result.articles.size());
+        assertTrue(result.partial);
+        assertTrue(result.failed);
+    }
+
+    @Test
+    public void completeBodyIsNotPartial() {
+        QueryUtils.Result result = parse(HEADER + article(0) + "," + article(1) + FOOTER);
+
+        assertEquals(2, result.articles.size());
+        assertEquals("Headline 1", result.articles.get(1).getTitle());
+        assertFalse(result.partial);
+        assertFalse(result.failed);
+    }
+
+    private static QueryUtils.Result parse(String json) {
+        return QueryUtils.extractArticlesFromJson(new ByteArrayInputStream(json.getBytes(UTF_8)),
+                MAX_ARTICLES, MAX_RESPONSE_BYTES);
+    }
+
+    private static String article(int i) {
+        return "{\"id\":\"football/2018/jul/15/article-" + i + "\",\"type\":\"article\","
+                + "\"sectionName\":\"Football\",\"webPublicationDate\":\"2018-07-15T18:00:00Z\","
+                + "\"webTitle\":\"Headline " + i + "\","
+                + "\"webUrl\":\"https://www.theguardian.com/football/2018/jul/15/article-" + i + "\","
+                + "\"tags\":[{\"webTitle\":\"Reporter " + i + "\"}]}";
+    }
+
+    /**
+     * A response body of the given size, generated while it's read so the test itself
+     * never holds it in memory.
+     */
+    private static final class GeneratedBody extends InputStream {
+        private final long mSize;
+        private long mRead = 0;
+        private byte[] mChunk = HEADER.getBytes(UTF_8);
+        private int mChunkOffset = 0;
+        private int mArticles = 0;
+
+        GeneratedBody(long size) {
+            mSize = size;
+        }
+
+        @Override
+        public int read() {
+            if (mChunk == null || (mChunkOffset == mChunk.length && !nextChunk())) {
+                return -1;
+            }
+            mRead++;
+            return mChunk[mChunkOffset++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (mChunk == null || (mChunkOffset == mChunk.length && !nextChunk())) {
+                return -1;
+            }
+            int count = Math.min(length, mChunk.length - mChunkOffset);
+            System.arraycopy(mChunk, mChunkOffset, buffer, offset, count);
+            mChunkOffset += count;
+            mRead += count;
+            return count;
+        }
+
+        private boolean nextChunk() {
+            if (mRead >= mSize) {
+                mChunk = mArticles >= 0 ? FOOTER.getBytes(UTF_8) : null;
+                mArticles = -1;
+            } else {
+                mChunk = ((mArticles > 0 ? "," : "") + article(mArticles++)).getBytes(UTF_8);
+            }
+            mChunkOffset = 0;
+            return mChunk != null;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package net.rmasoft.worldcupnews;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
@@ -13,6 +15,8 @@ class Article {
     private final String mContributor;
     private final String mPublishDate;
     private final String mURL;
+    private final long mUrlHash;
+    private List<Article> mNearDuplicates = Collections.emptyList();
 
     public Article(String Title, String Section, String PublishDate, String Contributor, String URL) {
         this.mTitle = Title;
@@ -20,6 +24,8 @@ class Article {
         this.mPublishDate = PublishDate;
         this.mContributor = Contributor;
         this.mURL = URL;
+        // Hash once here (off the UI thread) so the read state lookup while binding is cheap
+        this.mUrlHash = ReadArticles.hashUrl(URL);
     }
 
     public String getTitle() {
@@ -73,5 +79,20 @@ class Article {
         return mURL;
     }
 
+    public long getUrlHash() {
+        return mUrlHash;
+    }
+
+    /**
+     * Return the Articles with a near identical headline folded into this one at ingest.
+     */
+    public List<Article> getNearDuplicates() {
+        return mNearDuplicates;
+    }
+
+    public void setNearDuplicates(List<Article> nearDuplicates) {
+        this.mNearDuplicates = nearDuplicates;
+    }
+
 
 }
\ No newline at end of file
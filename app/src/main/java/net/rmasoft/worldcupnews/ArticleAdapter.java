@@ -6,17 +6,31 @@ import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * An {@link ArticleAdapter} knows how to create a list item layout for each Article
- * using the provided Holder
+ * using the provided Holder.
+ * Articles with near duplicates are shown as one row which expands to show the others under it.
  */
 public class ArticleAdapter extends RecyclerView.Adapter<ArticleHolder> {
 
     private List<Article> Articles;
     private final Context context;
 
+    /** Rows on screen: the Articles, with the near duplicates of expanded groups after them */
+    private final List<Article> mRows = new ArrayList<>();
+
+    /** Near duplicates currently shown as rows under the first Article of their group */
+    private final Set<Article> mNestedRows = new HashSet<>();
+
+    /** URLs of the expanded groups, kept across refreshes */
+    private final Set<String> mExpanded = new HashSet<>();
+
     /**
      * Constructs a new {@link ArticleAdapter}.
      *
@@ -28,6 +42,7 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleHolder> {
         // 1. Initialize our adapter
         this.Articles = Articles;
         this.context = context;
+        buildRows();
     }
 
     // 2. Override the onCreateViewHolder method
@@ -43,7 +58,7 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleHolder> {
         View v = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.article_list_item, parent, false);
 
-        return new ArticleHolder(this.context, v);
+        return new ArticleHolder(this.context, v, this);
     }
 
     // 4. Override the onBindViewHolder method
@@ -51,18 +66,69 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleHolder> {
     public void onBindViewHolder(@NonNull ArticleHolder articleHolder, int i) {
 
         // 5. Use position to access the correct Article object
-        Article currentArticle = this.Articles.get(i);
+        Article currentArticle = this.mRows.get(i);
 
         // 6. Bind the Article object to the holder
         articleHolder.bindArticle(currentArticle);
+        articleHolder.bindGroup(mNestedRows.contains(currentArticle), mExpanded.contains(currentArticle.getURL()));
     }
 
     @Override
     public int getItemCount() {
-        if (this.Articles != null) {
-            return this.Articles.size();
+        return this.mRows.size();
+    }
+
+    /**
+     * Expand or collapse the near duplicates of the group at the given row.
+     */
+    public void toggleGroup(int position) {
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        Article article = this.mRows.get(position);
+        if (mNestedRows.contains(article)) {
+            return;
+        }
+        List<Article> nearDuplicates = article.getNearDuplicates();
+        if (nearDuplicates.isEmpty()) {
+            return;
+        }
+
+        if (mExpanded.remove(article.getURL())) {
+            this.mRows.subList(position + 1, position + 1 + nearDuplicates.size()).clear();
+            mNestedRows.removeAll(nearDuplicates);
+            this.notifyItemRangeRemoved(position + 1, nearDuplicates.size());
         } else {
-            return 0;
+            mExpanded.add(article.getURL());
+            this.mRows.addAll(position + 1, nearDuplicates);
+            mNestedRows.addAll(nearDuplicates);
+            this.notifyItemRangeInserted(position + 1, nearDuplicates.size());
+        }
+        this.notifyItemChanged(position);
+    }
+
+    /**
+     * Flatten the Articles into rows, expanding the groups that were expanded before.
+     * Groups which are not in the new list are forgotten.
+     */
+    private void buildRows() {
+        this.mRows.clear();
+        this.mNestedRows.clear();
+        if (this.Articles == null) {
+            // Cleared before a refresh, keep the expanded groups for the new list
+            return;
+        }
+        Set<String> urls = new HashSet<>();
+        for (Article article : this.Articles) {
+            urls.add(article.getURL());
+        }
+        mExpanded.retainAll(urls);
+        for (Article article : this.Articles) {
+            this.mRows.add(article);
+            if (mExpanded.contains(article.getURL())) {
+                this.mRows.addAll(article.getNearDuplicates());
+                this.mNestedRows.addAll(article.getNearDuplicates());
+            }
         }
     }
 
@@ -71,6 +137,7 @@ public class ArticleAdapter extends RecyclerView.Adapter<ArticleHolder> {
      */
     public void updateContent(List<Article> newArticles) {
         this.Articles = newArticles;
+        buildRows();
         this.notifyDataSetChanged();
     }
 
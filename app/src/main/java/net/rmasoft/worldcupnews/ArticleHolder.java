@@ -2,8 +2,10 @@ package net.rmasoft.worldcupnews;
 
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Color;
 import android.net.Uri;
 import android.support.annotation.NonNull;
+import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
 import android.view.View;
 import android.widget.TextView;
@@ -14,24 +16,39 @@ public class ArticleHolder extends RecyclerView.ViewHolder implements View.OnCli
     private final TextView articleSectionAndContributor;
     private final TextView articleDate;
     private final TextView articleTime;
+    private final TextView articleSimilar;
 
     private Article mArticle;
     private final Context context;
+    private final ArticleAdapter mAdapter;
+    private final ReadArticles mReadArticles;
+    private final int mUnreadColor;
+    private final int mReadColor;
+    private final int mNestedColor;
 
-    public ArticleHolder(Context context, @NonNull View itemView) {
+    public ArticleHolder(Context context, @NonNull View itemView, ArticleAdapter adapter) {
         super(itemView);
 
-        // 1. Set the context
+        // 1. Set the context and the adapter owning the expandable groups
         this.context = context;
+        this.mAdapter = adapter;
 
         // 2. Set up the UI widgets of the holder
         this.articleTitle = itemView.findViewById(R.id.title);
         this.articleSectionAndContributor = itemView.findViewById(R.id.section_and_contributor);
         this.articleDate = itemView.findViewById(R.id.date);
         this.articleTime = itemView.findViewById(R.id.time);
+        this.articleSimilar = itemView.findViewById(R.id.similar_count);
+
+        // Resolve the title colors once per holder instead of on every bind
+        this.mReadArticles = ReadArticles.getInstance(context);
+        this.mUnreadColor = this.articleTitle.getCurrentTextColor();
+        this.mReadColor = ContextCompat.getColor(context, R.color.colorRead);
+        this.mNestedColor = ContextCompat.getColor(context, R.color.colorNestedRow);
 
         // 3. Set the "onClick" listener of the holder
         itemView.setOnClickListener(this);
+        this.articleSimilar.setOnClickListener(this);
     }
 
     public void bindArticle(Article article) {
@@ -43,6 +60,25 @@ public class ArticleHolder extends RecyclerView.ViewHolder implements View.OnCli
         this.articleDate.setText(article.getDate());
         this.articleTime.setText(article.getTime());
         // URL ...
+        this.articleTitle.setTextColor(mReadArticles.isRead(article.getUrlHash()) ? mReadColor : mUnreadColor);
+    }
+
+    /**
+     * Bind the near-duplicates state of the row.
+     *
+     * @param nested   true if the row is a near duplicate shown under its group's first Article
+     * @param expanded true if the near duplicates of this row are shown
+     */
+    public void bindGroup(boolean nested, boolean expanded) {
+        int similar = mArticle.getNearDuplicates().size();
+        if (nested || similar == 0) {
+            this.articleSimilar.setVisibility(View.GONE);
+        } else {
+            this.articleSimilar.setVisibility(View.VISIBLE);
+            this.articleSimilar.setText(context.getString(
+                    expanded ? R.string.similar_expanded : R.string.similar_collapsed, similar));
+        }
+        this.itemView.setBackgroundColor(nested ? mNestedColor : Color.TRANSPARENT);
     }
 
     // Replaces the setOnItemClickListener as we implements View.OnClickListener
@@ -50,6 +86,16 @@ public class ArticleHolder extends RecyclerView.ViewHolder implements View.OnCli
     public void onClick(View view) {
 
         // 5. Handle the onClick event for the ViewHolder
+        // The similar count expands or collapses the group instead of opening the Article
+        if (view.getId() == R.id.similar_count) {
+            mAdapter.toggleGroup(getAdapterPosition());
+            return;
+        }
+
+        // Remember the Article as read and restyle the row right away
+        mReadArticles.markRead(mArticle.getUrlHash());
+        this.articleTitle.setTextColor(mReadColor);
+
         // Convert the String URL into a URI object (to pass into the Intent constructor)
         Uri ArticleUri = Uri.parse(mArticle.getURL());
 
@@ -14,15 +14,36 @@ class ArticleLoader extends AsyncTaskLoader<List<Article>> {
     /** Query URL */
     private final String mUrl;
 
+    /** Max number of Articles kept from the response */
+    private final int mMaxArticles;
+
+    /** Max number of bytes read from the response */
+    private final int mMaxResponseBytes;
+
+    /** True if the last load kept only part of the response */
+    private volatile boolean mPartial = false;
+
     /**
      * Constructs a new {@link ArticleLoader}.
      *
      * @param context of the activity
      * @param url to load data from
+     * @param maxArticles max number of Articles to keep from the response
+     * @param maxResponseBytes max number of bytes to read from the response
      */
-    public ArticleLoader(Context context, String url) {
+    public ArticleLoader(Context context, String url, int maxArticles, int maxResponseBytes) {
         super(context);
         mUrl = url;
+        mMaxArticles = maxArticles;
+        mMaxResponseBytes = maxResponseBytes;
+    }
+
+    /**
+     * Return true if some Articles of the last load were dropped because the response
+     * was truncated, malformed or over the limits.
+     */
+    public boolean isPartial() {
+        return mPartial;
     }
 
     @Override
@@ -39,7 +60,22 @@ class ArticleLoader extends AsyncTaskLoader<List<Article>> {
             return null;
         }
 
+        // Load the read Articles from disk here so binding the rows doesn't touch the disk
+        ReadArticles.getInstance(getContext()).load();
+
         // Perform the network request, parse the response, and extract a list of Article.
-        return QueryUtils.fetchData(mUrl);
+        QueryUtils.Result result = QueryUtils.fetchData(mUrl, mMaxArticles, mMaxResponseBytes);
+        mPartial = result.partial;
+        List<Article> articles = result.articles;
+
+        // Piggyback the widget refresh on this fetch, the widget never fetches on its own
+        if (articles != null && !articles.isEmpty()) {
+            ArticleSnapshot.save(getContext(), articles);
+            HeadlinesWidget.requestUpdate(getContext());
+        }
+
+        // The caches may have grown with this fetch, keep them under the heap ceiling
+        MemoryBudget.getInstance().enforceCeiling();
+        return articles;
     }
 }
\ No newline at end of file
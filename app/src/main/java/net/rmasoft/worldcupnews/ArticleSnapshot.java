@@ -0,0 +1,211 @@
+package net.rmasoft.worldcupnews;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The latest headlines persisted after each successful fetch, so the home-screen widget can
+ * render them without starting the app, touching the network or parsing any JSON.
+ * The file is a small binary record: a version, a count, then a title and URL per headline.
+ */
+final class ArticleSnapshot {
+
+    private static final String LOG_TAG = ArticleSnapshot.class.getName();
+    private static final String FILE_NAME = "article_snapshot.bin";
+    private static final int VERSION = 1;
+
+    /** Number of headlines kept, matches the rows of the widget layout */
+    static final int MAX_HEADLINES = 5;
+
+    /** In memory copy, null until the file is read or written in this process, guarded by the class */
+    private static List<Headline> sHeadlines;
+
+    /** Serializes the writes of the file, never held by the trim callbacks */
+    private static final Object sFileLock = new Object();
+
+    /** The in memory copy as trimmed by the {@link MemoryBudget}, reloaded on the next widget update */
+    static final TrimmableCache CACHE = new TrimmableCache() {
+        @Override
+        public String getName() {
+            return "Widget snapshot";
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            synchronized (ArticleSnapshot.class) {
+                long size = 0;
+                if (sHeadlines != null) {
+                    for (Headline headline : sHeadlines) {
+                        // Object and string headers, then the chars
+                        size += 64 + 2 * (headline.title.length() + headline.url.length());
+                    }
+                }
+                return size;
+            }
+        }
+
+        @Override
+        public void evict() {
+            synchronized (ArticleSnapshot.class) {
+                sHeadlines = null;
+            }
+        }
+    };
+
+    static {
+        MemoryBudget.getInstance().register(CACHE, MemoryBudget.TIER_PERSISTED);
+    }
+
+    /**
+     * A single headline of the snapshot.
+     */
+    static final class Headline {
+        final String title;
+        final String url;
+
+        Headline(String title, String url) {
+            this.title = title;
+            this.url = url;
+        }
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link ArticleSnapshot} object.
+     */
+    private ArticleSnapshot() {
+    }
+
+    /**
+     * Persist the top headlines of the given Articles, meant to be called from a background thread.
+     * The file is written without holding the class lock, so trimming the copy never waits on the disk.
+     */
+    static void save(Context context, List<Article> articles) {
+        synchronized (sFileLock) {
+            saveLocked(context, articles);
+        }
+    }
+
+    /**
+     * Write the snapshot file then swap the copy in memory, called with sFileLock held.
+     */
+    private static void saveLocked(Context context, List<Article> articles) {
+        if (articles == null || articles.isEmpty()) {
+            return;
+        }
+
+        List<Headline> headlines = new ArrayList<>();
+        for (int i = 0; i < articles.size() && i < MAX_HEADLINES; i++) {
+            Article article = articles.get(i);
+            headlines.add(new Headline(article.getTitle(), article.getURL()));
+        }
+
+        // Write to a temporary file first so the widget never reads a half written snapshot
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        File tempFile = new File(context.getFilesDir(), FILE_NAME + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            write(out, headlines);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                Log.e(LOG_TAG, "Problem replacing the Article snapshot.");
+                return;
+            }
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem saving the Article snapshot.", e);
+            return;
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the Article snapshot.", e);
+                }
+            }
+        }
+        synchronized (ArticleSnapshot.class) {
+            sHeadlines = Collections.unmodifiableList(headlines);
+        }
+    }
+
+    /**
+     * Return the persisted headlines, an empty list if there's no snapshot yet.
+     * Reads the file when there's no copy in memory, so don't call it from the main thread.
+     * Like {@link #save(Context, List)}, the file is read without holding the class lock.
+     */
+    static List<Headline> load(Context context) {
+        synchronized (ArticleSnapshot.class) {
+            if (sHeadlines != null) {
+                return sHeadlines;
+            }
+        }
+
+        List<Headline> headlines = new ArrayList<>();
+        File file = new File(context.getFilesDir(), FILE_NAME);
+        if (file.exists()) {
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+                headlines = read(in);
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Problem reading the Article snapshot.", e);
+                headlines.clear();
+            } finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        Log.e(LOG_TAG, "Problem closing the Article snapshot.", e);
+                    }
+                }
+            }
+        }
+        synchronized (ArticleSnapshot.class) {
+            // A save while the file was read wins, it's the newer snapshot
+            if (sHeadlines == null) {
+                sHeadlines = Collections.unmodifiableList(headlines);
+            }
+            return sHeadlines;
+        }
+    }
+
+    /**
+     * Encode the headlines in the snapshot format.
+     */
+    static void write(DataOutputStream out, List<Headline> headlines) throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(headlines.size());
+        for (Headline headline : headlines) {
+            out.writeUTF(headline.title);
+            out.writeUTF(headline.url);
+        }
+    }
+
+    /**
+     * Decode headlines written by {@link #write(DataOutputStream, List)},
+     * an empty list if the snapshot is from another version.
+     */
+    static List<Headline> read(DataInputStream in) throws IOException {
+        List<Headline> headlines = new ArrayList<>();
+        if (in.readInt() == VERSION) {
+            int count = Math.min(in.readInt(), MAX_HEADLINES);
+            for (int i = 0; i < count; i++) {
+                headlines.add(new Headline(in.readUTF(), in.readUTF()));
+            }
+        }
+        return headlines;
+    }
+}
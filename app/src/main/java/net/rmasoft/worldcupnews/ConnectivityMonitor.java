@@ -0,0 +1,223 @@
+package net.rmasoft.worldcupnews;
+
+import android.annotation.TargetApi;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.NetworkInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+/**
+ * Holds the current connectivity state (connected, network type and metered status),
+ * updated from system callbacks instead of being polled on every refresh.
+ * Uses a default network callback where available, taking the state from the callback arguments,
+ * and the connectivity broadcast before that.
+ * The listener is always called on the main thread, and only when the connected state changes.
+ */
+final class ConnectivityMonitor {
+
+    /**
+     * Notified when the device goes online or offline.
+     */
+    interface Listener {
+        void onConnectivityChanged(boolean connected);
+    }
+
+    /** Network type used while there's no connection */
+    static final int TYPE_NONE = -1;
+
+    private final Context mContext;
+    private final ConnectivityManager mConnectivityManager;
+    private final Listener mListener;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    private boolean mConnected = false;
+    private int mNetworkType = TYPE_NONE;
+    private boolean mMetered = false;
+    /** The default network reported by the network callback, null while there's none */
+    private Network mNetwork;
+
+    private BroadcastReceiver mReceiver;
+    private ConnectivityManager.NetworkCallback mNetworkCallback;
+
+    private final Runnable mUpdateState = new Runnable() {
+        @Override
+        public void run() {
+            boolean wasConnected = mConnected;
+            readState();
+            if (wasConnected != mConnected) {
+                mListener.onConnectivityChanged(mConnected);
+            }
+        }
+    };
+
+    ConnectivityMonitor(Context context, Listener listener) {
+        mContext = context.getApplicationContext();
+        mConnectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        mListener = listener;
+    }
+
+    /**
+     * Read the initial state and start listening for changes.
+     */
+    void start() {
+        if (mConnectivityManager == null || mReceiver != null || mNetworkCallback != null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            readDefaultNetwork();
+            registerNetworkCallback();
+        } else {
+            readState();
+            mReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    mUpdateState.run();
+                }
+            };
+            mContext.registerReceiver(mReceiver, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        }
+    }
+
+    /**
+     * Stop listening for changes, the last known state is kept.
+     */
+    void stop() {
+        mHandler.removeCallbacksAndMessages(null);
+        if (mReceiver != null) {
+            mContext.unregisterReceiver(mReceiver);
+            mReceiver = null;
+        }
+        if (mNetworkCallback != null) {
+            mConnectivityManager.unregisterNetworkCallback(mNetworkCallback);
+            mNetworkCallback = null;
+        }
+    }
+
+    boolean isConnected() {
+        return mConnected;
+    }
+
+    /**
+     * Return the ConnectivityManager.TYPE_* of the active network, or {@link #TYPE_NONE}.
+     */
+    int getNetworkType() {
+        return mNetworkType;
+    }
+
+    boolean isMetered() {
+        return mMetered;
+    }
+
+    /**
+     * Seed the state from the current default network, the callback then keeps it up to date.
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    private void readDefaultNetwork() {
+        Network network = mConnectivityManager.getActiveNetwork();
+        NetworkCapabilities capabilities = network == null ? null : mConnectivityManager.getNetworkCapabilities(network);
+        if (capabilities != null) {
+            setState(network, true, getTransportType(capabilities), isMetered(capabilities));
+        } else {
+            setState(null, false, TYPE_NONE, false);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private void registerNetworkCallback() {
+        // Callbacks come on a system thread with the network and its capabilities,
+        // hop to the main thread with those instead of querying the active network again
+        mNetworkCallback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                // The type and metered status follow in onCapabilitiesChanged
+                postState(network, true, null);
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
+                postState(network, true, networkCapabilities);
+            }
+
+            @Override
+            public void onLost(Network network) {
+                postState(network, false, null);
+            }
+        };
+        mConnectivityManager.registerDefaultNetworkCallback(mNetworkCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private void postState(final Network network, final boolean connected,
+                           final NetworkCapabilities capabilities) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                boolean wasConnected = mConnected;
+                if (!connected) {
+                    // A late onLost for the previous default network must not override the new one
+                    if (!network.equals(mNetwork)) {
+                        return;
+                    }
+                    setState(null, false, TYPE_NONE, false);
+                } else if (capabilities != null) {
+                    setState(network, true, getTransportType(capabilities), isMetered(capabilities));
+                } else {
+                    setState(network, true, mNetworkType, mMetered);
+                }
+                if (wasConnected != mConnected) {
+                    mListener.onConnectivityChanged(mConnected);
+                }
+            }
+        });
+    }
+
+    private void setState(Network network, boolean connected, int networkType, boolean metered) {
+        mNetwork = network;
+        mConnected = connected;
+        mNetworkType = networkType;
+        mMetered = metered;
+    }
+
+    /**
+     * Map the transport of the network to the matching ConnectivityManager.TYPE_*.
+     */
+    @TargetApi(Build.VERSION_CODES.N)
+    private static int getTransportType(NetworkCapabilities capabilities) {
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return ConnectivityManager.TYPE_WIFI;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return ConnectivityManager.TYPE_MOBILE;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return ConnectivityManager.TYPE_ETHERNET;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_BLUETOOTH)) {
+            return ConnectivityManager.TYPE_BLUETOOTH;
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_VPN)) {
+            return ConnectivityManager.TYPE_VPN;
+        }
+        return TYPE_NONE;
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static boolean isMetered(NetworkCapabilities capabilities) {
+        return !capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_NOT_METERED);
+    }
+
+    /**
+     * Read the state from the active network, only used with the connectivity broadcast.
+     */
+    @SuppressWarnings("deprecation")
+    private void readState() {
+        NetworkInfo activeNetwork = mConnectivityManager.getActiveNetworkInfo();
+        mConnected = activeNetwork != null && activeNetwork.isConnectedOrConnecting();
+        mNetworkType = mConnected ? activeNetwork.getType() : TYPE_NONE;
+        mMetered = mConnected && ConnectivityManagerCompat.isActiveNetworkMetered(mConnectivityManager);
+    }
+}
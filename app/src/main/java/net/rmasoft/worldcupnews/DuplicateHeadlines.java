@@ -0,0 +1,306 @@
+package net.rmasoft.worldcupnews;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Ingest stage that collapses near-duplicate headlines (live blogs, "as it happened", updates...)
+ * into a single Article holding the others as its near duplicates.
+ * Each title gets a MinHash signature over its character shingles, and the signatures are split
+ * into bands for locality-sensitive hashing, so only Articles sharing a band bucket are compared
+ * and the grouping stays roughly linear in the number of Articles.
+ */
+final class DuplicateHeadlines {
+
+    /** Signature length, split in BANDS bands of ROWS_PER_BAND rows */
+    private static final int NUM_HASHES = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+
+    /** Shingle length in characters, short titles make word shingles too sparse */
+    private static final int SHINGLE_SIZE = 4;
+
+    /** Estimated Jaccard similarity above which two headlines are grouped */
+    private static final float SIMILARITY_THRESHOLD = 0.6f;
+
+    /** Signatures kept across refreshes, so only new Articles get hashed */
+    private static final int MAX_CACHED_SIGNATURES = 1000;
+
+    private static final int[] SEEDS = new int[NUM_HASHES];
+
+    static {
+        // Fixed seed so cached signatures stay comparable for the life of the process
+        Random random = new Random(2018);
+        for (int i = 0; i < NUM_HASHES; i++) {
+            SEEDS[i] = random.nextInt();
+        }
+    }
+
+    /**
+     * A cached signature with the title it was computed from. Live blogs keep their webUrl
+     * while the title changes, so the signature is only reused while the title is the same.
+     */
+    private static final class Signature {
+        final String title;
+        final int[] minHashes;
+
+        Signature(String title, int[] minHashes) {
+            this.title = title;
+            this.minHashes = minHashes;
+        }
+
+        boolean isFor(String otherTitle) {
+            return title == null ? otherTitle == null : title.equals(otherTitle);
+        }
+    }
+
+    /** Signature per webUrl, in access order to evict the least recently seen Articles */
+    private static final LinkedHashMap<String, Signature> sSignatures =
+            new LinkedHashMap<String, Signature>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Signature> eldest) {
+                    return size() > MAX_CACHED_SIGNATURES;
+                }
+            };
+
+    /** Number of signatures computed so far, guarded by sSignatures */
+    private static int sComputedSignatures = 0;
+
+    static {
+        // Signatures are the cheapest to rebuild, they go first when memory runs low
+        MemoryBudget.getInstance().register(new TrimmableCache() {
+            @Override
+            public String getName() {
+                return "Headline signatures";
+            }
+
+            @Override
+            public long getSizeInBytes() {
+                synchronized (sSignatures) {
+                    long size = 0;
+                    for (Map.Entry<String, Signature> entry : sSignatures.entrySet()) {
+                        // Map entry and array headers, the signature, then the URL and title chars
+                        String title = entry.getValue().title;
+                        size += 80 + NUM_HASHES * 4
+                                + 2 * (entry.getKey().length() + (title == null ? 0 : title.length()));
+                    }
+                    return size;
+                }
+            }
+
+            @Override
+            public void evict() {
+                synchronized (sSignatures) {
+                    sSignatures.clear();
+                }
+            }
+        }, MemoryBudget.TIER_DERIVED);
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link DuplicateHeadlines} object.
+     */
+    private DuplicateHeadlines() {
+    }
+
+    /**
+     * Return the list of Articles with near duplicates folded into the first Article of their group.
+     * The order of the remaining Articles is kept.
+     */
+    static List<Article> collapse(List<Article> articles) {
+        if (articles == null || articles.size() < 2) {
+            return articles;
+        }
+
+        int count = articles.size();
+        int[][] signatures = new int[count][];
+        synchronized (sSignatures) {
+            for (int i = 0; i < count; i++) {
+                Article article = articles.get(i);
+                Signature signature = sSignatures.get(article.getURL());
+                if (signature == null || !signature.isFor(article.getTitle())) {
+                    // New Article, or its title changed since the last refresh
+                    signature = new Signature(article.getTitle(), signatureOf(article.getTitle()));
+                    sSignatures.put(article.getURL(), signature);
+                    sComputedSignatures++;
+                }
+                signatures[i] = signature.minHashes;
+            }
+        }
+
+        // Union-find over the Article positions, the root is always the first Article of a group
+        int[] parent = new int[count];
+        for (int i = 0; i < count; i++) {
+            parent[i] = i;
+        }
+
+        // Each bucket keeps one member per group that landed in it, and a new member is compared
+        // with all of them, so a false-positive collision can't hide later similar members
+        Map<Long, List<Integer>> buckets = new HashMap<>();
+        for (int band = 0; band < BANDS; band++) {
+            buckets.clear();
+            for (int i = 0; i < count; i++) {
+                Long key = bandKey(signatures[i], band);
+                List<Integer> members = buckets.get(key);
+                if (members == null) {
+                    members = new ArrayList<>(2);
+                    buckets.put(key, members);
+                }
+
+                boolean grouped = false;
+                for (int member : members) {
+                    if (find(parent, member) == find(parent, i)) {
+                        grouped = true;
+                    } else if (similarity(signatures[member], signatures[i]) >= SIMILARITY_THRESHOLD) {
+                        union(parent, member, i);
+                        grouped = true;
+                    }
+                }
+                if (!grouped) {
+                    members.add(i);
+                }
+            }
+        }
+
+        // Fold every Article into the first Article of its group
+        List<Article> collapsed = new ArrayList<>();
+        Map<Integer, List<Article>> duplicates = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int root = find(parent, i);
+            if (root == i) {
+                collapsed.add(articles.get(i));
+            } else {
+                List<Article> group = duplicates.get(root);
+                if (group == null) {
+                    group = new ArrayList<>();
+                    duplicates.put(root, group);
+                }
+                group.add(articles.get(i));
+            }
+        }
+        for (Map.Entry<Integer, List<Article>> entry : duplicates.entrySet()) {
+            articles.get(entry.getKey()).setNearDuplicates(entry.getValue());
+        }
+        return collapsed;
+    }
+
+    /**
+     * Number of signatures computed since the process started, a refresh only adds the new ones.
+     */
+    static int computedSignatures() {
+        synchronized (sSignatures) {
+            return sComputedSignatures;
+        }
+    }
+
+    /**
+     * Compute the MinHash signature of the title's character shingles.
+     */
+    private static int[] signatureOf(String title) {
+        String text = normalize(title);
+
+        int[] signature = new int[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = Integer.MAX_VALUE;
+        }
+
+        int shingles = Math.max(1, text.length() - SHINGLE_SIZE + 1);
+        for (int start = 0; start < shingles; start++) {
+            // Hash the shingle in place instead of allocating a substring
+            int shingle = 0;
+            int end = Math.min(text.length(), start + SHINGLE_SIZE);
+            for (int c = start; c < end; c++) {
+                shingle = 31 * shingle + text.charAt(c);
+            }
+            for (int i = 0; i < NUM_HASHES; i++) {
+                int hash = mix(shingle ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Lower case the title and collapse punctuation and spaces, so "Live!" and "live -" match.
+     */
+    private static String normalize(String title) {
+        if (title == null) {
+            return "";
+        }
+        String lower = title.toLowerCase(Locale.ENGLISH);
+        StringBuilder builder = new StringBuilder(lower.length());
+        boolean space = false;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                builder.append(c);
+                space = false;
+            } else if (!space && builder.length() > 0) {
+                builder.append(' ');
+                space = true;
+            }
+        }
+        return builder.toString().trim();
+    }
+
+    /**
+     * Combine the rows of one band into a bucket key, the band number is part of the key.
+     */
+    private static Long bandKey(int[] signature, int band) {
+        long key = band;
+        for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+            key = 31 * key + signature[row];
+        }
+        return key;
+    }
+
+    /**
+     * Estimate the Jaccard similarity as the fraction of equal signature rows.
+     */
+    private static float similarity(int[] first, int[] second) {
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (float) equal / NUM_HASHES;
+    }
+
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Join the two groups, keeping the smaller position (the earlier Article) as the root.
+     */
+    private static void union(int[] parent, int first, int second) {
+        int firstRoot = find(parent, first);
+        int secondRoot = find(parent, second);
+        if (firstRoot < secondRoot) {
+            parent[secondRoot] = firstRoot;
+        } else if (secondRoot < firstRoot) {
+            parent[firstRoot] = secondRoot;
+        }
+    }
+}
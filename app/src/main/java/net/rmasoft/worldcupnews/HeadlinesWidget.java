@@ -0,0 +1,128 @@
+package net.rmasoft.worldcupnews;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.widget.RemoteViews;
+
+import java.util.List;
+
+/**
+ * Home-screen widget showing the latest headlines from the {@link ArticleSnapshot}.
+ * The widget never fetches anything itself, it is refreshed after the app's own fetches,
+ * and those refreshes are throttled so a burst of fetches results in a single update.
+ * Rendering happens on a background thread, as it may have to read the snapshot file.
+ */
+public class HeadlinesWidget extends AppWidgetProvider {
+
+    /** Minimum time between two widget refreshes triggered by fetches */
+    private static final long MIN_UPDATE_INTERVAL = 30000; /* milliseconds */
+
+    private static final int[] HEADLINE_IDS = {
+            R.id.widget_headline_1,
+            R.id.widget_headline_2,
+            R.id.widget_headline_3,
+            R.id.widget_headline_4,
+            R.id.widget_headline_5
+    };
+
+    private static final Handler sHandler = new Handler(Looper.getMainLooper());
+    private static long sLastUpdate = 0;
+    private static boolean sUpdatePending = false;
+
+    @Override
+    public void onUpdate(Context context, final AppWidgetManager appWidgetManager, final int[] appWidgetIds) {
+        // The process may have been started for the widget only, the snapshot must still be trimmed
+        MemoryBudget.getInstance().install(context);
+
+        // Keep the broadcast alive while the snapshot is read off the main thread
+        final PendingResult pendingResult = goAsync();
+        final Context appContext = context.getApplicationContext();
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    render(appContext, appWidgetManager, appWidgetIds);
+                } finally {
+                    pendingResult.finish();
+                }
+            }
+        });
+    }
+
+    /**
+     * Ask for the widgets to show the latest snapshot, called after a successful fetch.
+     * Requests coming in before MIN_UPDATE_INTERVAL has passed are batched into one update.
+     */
+    static void requestUpdate(Context context) {
+        final Context appContext = context.getApplicationContext();
+        sHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (sUpdatePending) {
+                    return;
+                }
+                sUpdatePending = true;
+                long delay = Math.max(0, sLastUpdate + MIN_UPDATE_INTERVAL - SystemClock.elapsedRealtime());
+                sHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        sUpdatePending = false;
+                        sLastUpdate = SystemClock.elapsedRealtime();
+                        final AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(appContext);
+                        final int[] appWidgetIds = appWidgetManager.getAppWidgetIds(
+                                new ComponentName(appContext, HeadlinesWidget.class));
+                        if (appWidgetIds.length > 0) {
+                            AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    render(appContext, appWidgetManager, appWidgetIds);
+                                }
+                            });
+                        }
+                    }
+                }, delay);
+            }
+        });
+    }
+
+    /**
+     * Build the widget views from the snapshot and push them to all the given widgets.
+     * Called on a background thread.
+     */
+    static void render(Context context, AppWidgetManager appWidgetManager, int[] appWidgetIds) {
+        List<ArticleSnapshot.Headline> headlines = ArticleSnapshot.load(context);
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.widget_headlines);
+
+        // The header opens the app
+        Intent appIntent = new Intent(context, MainActivity.class);
+        views.setOnClickPendingIntent(R.id.widget_header,
+                PendingIntent.getActivity(context, 0, appIntent, PendingIntent.FLAG_UPDATE_CURRENT));
+
+        // Each headline opens its Article directly
+        for (int i = 0; i < HEADLINE_IDS.length; i++) {
+            if (i < headlines.size()) {
+                ArticleSnapshot.Headline headline = headlines.get(i);
+                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(headline.url));
+                views.setTextViewText(HEADLINE_IDS[i], headline.title);
+                views.setOnClickPendingIntent(HEADLINE_IDS[i],
+                        PendingIntent.getActivity(context, i + 1, websiteIntent, PendingIntent.FLAG_UPDATE_CURRENT));
+                views.setViewVisibility(HEADLINE_IDS[i], View.VISIBLE);
+            } else {
+                views.setViewVisibility(HEADLINE_IDS[i], View.GONE);
+            }
+        }
+        views.setViewVisibility(R.id.widget_empty, headlines.isEmpty() ? View.VISIBLE : View.GONE);
+
+        appWidgetManager.updateAppWidget(appWidgetIds, views);
+    }
+}
@@ -0,0 +1,95 @@
+package net.rmasoft.worldcupnews;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * Shared HTTP transport for all the Guardian API calls.
+ * The platform {@link HttpURLConnection} already keeps idle keep-alive sockets in a pool per host,
+ * but calling disconnect() after a request closes the socket instead of returning it. So we never
+ * disconnect after a clean response: the body is fully consumed and closed, which hands the socket
+ * back to the pool and lets the next refresh or page fetch skip the TCP and TLS handshakes.
+ */
+final class HttpTransport {
+
+    private static final String LOG_TAG = HttpTransport.class.getName();
+    private static final int HTTP_READ_TIMEOUT = 10000; /* milliseconds */
+    private static final int HTTP_CONNECT_TIMEOUT = 15000; /* milliseconds */
+
+    /** Bigger leftovers than this are cheaper to drop than to drain */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link HttpTransport} object.
+     */
+    private HttpTransport() {
+    }
+
+    /**
+     * Open a GET connection to the given URL, reusing a pooled socket when one is available.
+     */
+    static HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setReadTimeout(HTTP_READ_TIMEOUT);
+        urlConnection.setConnectTimeout(HTTP_CONNECT_TIMEOUT);
+        urlConnection.setRequestMethod("GET");
+        return urlConnection;
+    }
+
+    /**
+     * Hand the socket back to the pool by draining and closing the response body.
+     * The error stream is used when the request was not successful, as it holds the same socket.
+     */
+    static void release(HttpURLConnection urlConnection, InputStream inputStream) {
+        if (urlConnection == null) {
+            return;
+        }
+        if (inputStream == null) {
+            inputStream = urlConnection.getErrorStream();
+        }
+        if (inputStream == null) {
+            return;
+        }
+        try {
+            if (drain(inputStream)) {
+                inputStream.close();
+            } else {
+                // Too much left to read, the socket is not worth keeping
+                urlConnection.disconnect();
+            }
+        } catch (IOException e) {
+            Log.w(LOG_TAG, "Problem releasing the connection, dropping it.", e);
+            urlConnection.disconnect();
+        }
+    }
+
+    /**
+     * Close the socket for good, used when the connection is in an unknown state after an error.
+     */
+    static void discard(HttpURLConnection urlConnection) {
+        if (urlConnection != null) {
+            urlConnection.disconnect();
+        }
+    }
+
+    /**
+     * Read what is left of the body so the socket is positioned at the next response.
+     * @return true if the end of the stream was reached
+     */
+    private static boolean drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[4096];
+        int drained = 0;
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            drained += read;
+            if (drained > MAX_DRAIN_BYTES) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,92 @@
+package net.rmasoft.worldcupnews;
+
+/**
+ * A set of primitive longs in an open-addressing table with linear probing.
+ * Lookups are O(1) and allocation free. Values must already be well mixed hashes,
+ * their low bits are used directly as the table index, and 0 is reserved for empty slots.
+ * Not thread safe, callers synchronize.
+ */
+final class LongHashSet {
+
+    /** Marks a free slot in the table */
+    static final long EMPTY = 0L;
+
+    private static final int INITIAL_CAPACITY = 256; /* must be a power of two */
+
+    private long[] mTable = new long[INITIAL_CAPACITY];
+    private int mSize = 0;
+
+    /**
+     * Insert the value in the set.
+     * @return false if it was already there
+     */
+    boolean add(long value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("0 is reserved for empty slots");
+        }
+        // Keep the load factor under 3/4 so probe chains stay short
+        if ((mSize + 1) * 4 > mTable.length * 3) {
+            rehash(mTable.length * 2);
+        }
+        int mask = mTable.length - 1;
+        int index = (int) value & mask;
+        while (mTable[index] != EMPTY) {
+            if (mTable[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        mTable[index] = value;
+        mSize++;
+        return true;
+    }
+
+    /**
+     * Add all the values of the other set.
+     */
+    void addAll(LongHashSet other) {
+        for (long value : other.mTable) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    boolean contains(long value) {
+        int mask = mTable.length - 1;
+        int index = (int) value & mask;
+        while (mTable[index] != EMPTY) {
+            if (mTable[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Return the heap held by the table, in bytes.
+     */
+    long sizeInBytes() {
+        return mTable.length * 8L;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldTable = mTable;
+        mTable = new long[capacity];
+        int mask = capacity - 1;
+        for (long value : oldTable) {
+            if (value != EMPTY) {
+                int index = (int) value & mask;
+                while (mTable[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                mTable[index] = value;
+            }
+        }
+    }
+}
@@ -2,8 +2,6 @@ package net.rmasoft.worldcupnews;
 
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.annotation.NonNull;
@@ -17,6 +15,7 @@ import android.content.Loader;
 
 import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -29,6 +28,8 @@ import java.util.List;
 @SuppressWarnings("FieldCanBeLocal")
 public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<Article>> {
 
+    private static final String LOG_TAG = MainActivity.class.getName();
+
     /** URL for Article data from the guardian API */
     public final String apiKey = BuildConfig.guardianAPIs_ApiKey;
     public final String BASE_REQUEST_URL = "https://content.guardianapis.com/search";
@@ -50,11 +51,20 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     // Monitor if SharedPreferences changes
     private SharedPreferences.OnSharedPreferenceChangeListener prefListener;
 
+    /** Connectivity state, updated by the system instead of being polled */
+    private ConnectivityMonitor mConnectivityMonitor;
+
+    /** A refresh was asked for while offline, run it once the network is back */
+    private boolean mRefreshPending = false;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        // Let the caches shed memory when the system asks for it
+        MemoryBudget.getInstance().install(this);
+
         //listener on change any preference
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
         prefListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
@@ -64,6 +74,17 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         };
         prefs.registerOnSharedPreferenceChangeListener(prefListener);
 
+        // Start tracking connectivity, replaying the pending refresh when going back online
+        mConnectivityMonitor = new ConnectivityMonitor(this, new ConnectivityMonitor.Listener() {
+            @Override
+            public void onConnectivityChanged(boolean connected) {
+                if (connected && mRefreshPending) {
+                    restartTheLoader();
+                }
+            }
+        });
+        mConnectivityMonitor.start();
+
         // Define the mEmptyStateTextView
         mEmptyStateTextView = findViewById(R.id.empty_view);
 
@@ -77,7 +98,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         ArticleRecyclerView.setAdapter(mAdapter);
 
         // Check internet connectivity and start Loader if there's connection
-        if (isConnected()) {
+        if (mConnectivityMonitor.isConnected()) {
             // Initialize the loader. Pass in the int ID constant defined above and pass in null for
             // the bundle. Pass in this activity for the LoaderCallbacks parameter (which is valid
             // because this activity implements the LoaderCallbacks interface).
@@ -90,6 +111,9 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
             // Update empty state with no connection error message
             mEmptyStateTextView.setText(R.string.no_internet_connection);
+
+            // Load as soon as the network is back
+            mRefreshPending = true;
         }
 
         // Getting SwipeContainerLayout
@@ -112,6 +136,12 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         );
     }
 
+    @Override
+    protected void onDestroy() {
+        mConnectivityMonitor.stop();
+        super.onDestroy();
+    }
+
     //*** Loader Functions ***//
     @NonNull
     @Override
@@ -121,6 +151,9 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         // getString retrieves a String value from the preferences. The second parameter is the default value for this preference.
         String articles_count = sharedPrefs.getString(getString(R.string.settings_articles_count_key),getString(R.string.settings_articles_count_default));
 
+        // The setting is free text, keep it to a sane number so the response stays small
+        int maxArticles = parseArticlesCount(articles_count);
+
         String orderBy  = sharedPrefs.getString(getString(R.string.settings_order_by_key),getString(R.string.settings_order_by_default));
 
         // parse breaks apart the URI string that's passed into its parameter
@@ -130,7 +163,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         Uri.Builder uriBuilder = baseUri.buildUpon();
 
         // Append query parameter and its value.
-        uriBuilder.appendQueryParameter("page-size", articles_count);
+        uriBuilder.appendQueryParameter("page-size", String.valueOf(maxArticles));
         uriBuilder.appendQueryParameter("order-by", orderBy);
         uriBuilder.appendQueryParameter("show-tags", "contributor");
         uriBuilder.appendQueryParameter("q", "football worldcup");
@@ -138,7 +171,8 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
         // Feed the completed uri and create a new loader for the given URL
         // That returns list of Objects
-        return new ArticleLoader(this, uriBuilder.toString());
+        return new ArticleLoader(this, uriBuilder.toString(), maxArticles,
+                getResources().getInteger(R.integer.max_response_bytes));
     }
 
     @Override
@@ -168,12 +202,19 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         }
 
         // Check internet last step to override no_articles
-        if (isConnected()) {
-            // Signal getting new data done
-            Toast.makeText(getApplicationContext(), "Fetching new data completed.", Toast.LENGTH_SHORT).show();
+        if (mConnectivityMonitor.isConnected()) {
+            // Signal getting new data done, or that only part of it could be loaded
+            if (((ArticleLoader) loader).isPartial()) {
+                Toast.makeText(getApplicationContext(), R.string.partial_articles, Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(getApplicationContext(), "Fetching new data completed.", Toast.LENGTH_SHORT).show();
+            }
         } else {
             // Update empty state with no connection error message
             mEmptyStateTextView.setText(R.string.no_internet_connection);
+
+            // The connection dropped during the fetch, refresh again once back online
+            mRefreshPending = true;
         }
     }
 
@@ -203,11 +244,29 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         return super.onOptionsItemSelected(item);
     }
 
+    /**
+     * Helper function to turn the articles count setting into a number of Articles
+     * between 1 and the max_articles resource, falling back to the default
+     */
+    private int parseArticlesCount(String articlesCount) {
+        int count = Integer.parseInt(getString(R.string.settings_articles_count_default));
+        if (articlesCount != null) {
+            try {
+                count = (int) Double.parseDouble(articlesCount.trim());
+            } catch (NumberFormatException e) {
+                Log.w(LOG_TAG, "Invalid articles count setting: " + articlesCount);
+            }
+        }
+        return Math.max(1, Math.min(count, getResources().getInteger(R.integer.max_articles)));
+    }
+
     /**
      * Helper function to start the Article Loader
      */
     public void restartTheLoader() {
-        if (isConnected()) {
+        if (mConnectivityMonitor.isConnected()) {
+            mRefreshPending = false;
+
             // Clear empty state
             mEmptyStateTextView.setText(null);
 
@@ -221,22 +280,9 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
             // Stop swipeContainer refresh
             swipeContainer.setRefreshing(false);
-        }
-    }
 
-    /**
-     * Helper function to check internet connectivity
-     */
-    public boolean isConnected() {
-        // Check internet connectivity
-        // Get a reference to the ConnectivityManager to check state of network connectivity
-        final ConnectivityManager cm = (ConnectivityManager)getSystemService(CONNECTIVITY_SERVICE);
-
-        // Get details on the currently active default data network
-        NetworkInfo activeNetwork = null;
-        if (cm != null) {
-            activeNetwork = cm.getActiveNetworkInfo();
+            // Queue the refresh, repeated requests while offline collapse into this one
+            mRefreshPending = true;
         }
-        return activeNetwork != null && activeNetwork.isConnectedOrConnecting();
     }
 }
\ No newline at end of file
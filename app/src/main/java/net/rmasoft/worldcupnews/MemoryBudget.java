@@ -0,0 +1,157 @@
+package net.rmasoft.worldcupnews;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Central memory budget every in-process cache registers with.
+ * On onTrimMemory / onLowMemory, or when the caches grow over the heap ceiling, the caches are
+ * evicted tier by tier, the cheapest to rebuild first, so the app survives in the background
+ * instead of being killed and paying a cold start on return.
+ */
+final class MemoryBudget implements ComponentCallbacks2 {
+
+    private static final String LOG_TAG = MemoryBudget.class.getName();
+
+    /** Data derived from other data, rebuilt with a bit of CPU (e.g. MinHash signatures) */
+    static final int TIER_DERIVED = 0;
+
+    /** Copies of data persisted on disk, reloaded with a small read (e.g. the widget snapshot) */
+    static final int TIER_PERSISTED = 1;
+
+    /** Data used while the user browses the list, evicted only when memory is critical */
+    static final int TIER_WORKING = 2;
+
+    private static MemoryBudget sInstance;
+
+    /** Registered caches, ordered by tier */
+    private final List<TrimmableCache> mCaches = new ArrayList<>();
+    private final List<Integer> mTiers = new ArrayList<>();
+
+    private long mHeapCeiling = Runtime.getRuntime().maxMemory() / 8;
+    private boolean mInstalled = false;
+
+    /**
+     * The app uses the shared {@link #getInstance()}, tests create their own budget.
+     */
+    MemoryBudget() {
+    }
+
+    static synchronized MemoryBudget getInstance() {
+        if (sInstance == null) {
+            sInstance = new MemoryBudget();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Start receiving the system memory callbacks, only the first call registers them.
+     */
+    synchronized void install(Context context) {
+        if (!mInstalled) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+            mInstalled = true;
+        }
+    }
+
+    /**
+     * Register a cache in one of the TIER_* eviction tiers.
+     */
+    synchronized void register(TrimmableCache cache, int tier) {
+        int index = 0;
+        while (index < mTiers.size() && mTiers.get(index) <= tier) {
+            index++;
+        }
+        mCaches.add(index, cache);
+        mTiers.add(index, tier);
+    }
+
+    /**
+     * Set the max number of bytes all the caches together may hold.
+     */
+    synchronized void setHeapCeiling(long heapCeiling) {
+        mHeapCeiling = heapCeiling;
+        enforceCeiling();
+    }
+
+    /**
+     * Evict tier by tier until the caches fit under the heap ceiling again.
+     * Caches call this after they have grown, without holding their own locks.
+     */
+    synchronized void enforceCeiling() {
+        long total = getTotalSize();
+        for (int tier = TIER_DERIVED; tier <= TIER_WORKING && total > mHeapCeiling; tier++) {
+            evictTier(tier);
+            total = getTotalSize();
+        }
+    }
+
+    /**
+     * Return the sum of the sizes of all the caches, in bytes.
+     */
+    synchronized long getTotalSize() {
+        long total = 0;
+        for (TrimmableCache cache : mCaches) {
+            total += cache.getSizeInBytes();
+        }
+        return total;
+    }
+
+    /**
+     * Return the current size of each cache by name, in eviction order, for debugging.
+     */
+    synchronized Map<String, Long> getSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (TrimmableCache cache : mCaches) {
+            sizes.put(cache.getName(), cache.getSizeInBytes());
+        }
+        return sizes;
+    }
+
+    @Override
+    public synchronized void onTrimMemory(int level) {
+        // Map the trim level to the last tier to evict
+        int lastTier;
+        if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            lastTier = TIER_WORKING;
+        } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+            lastTier = TIER_PERSISTED;
+        } else {
+            // TRIM_MEMORY_UI_HIDDEN and TRIM_MEMORY_RUNNING_MODERATE
+            lastTier = TIER_DERIVED;
+        }
+
+        long before = getTotalSize();
+        for (int tier = TIER_DERIVED; tier <= lastTier; tier++) {
+            evictTier(tier);
+        }
+        if (BuildConfig.DEBUG) {
+            Log.d(LOG_TAG, "Trim level " + level + ": " + before + " -> " + getTotalSize() + " bytes " + getSizes());
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        // Nothing to do, only the memory callbacks are used
+    }
+
+    private void evictTier(int tier) {
+        for (int i = 0; i < mCaches.size(); i++) {
+            if (mTiers.get(i) == tier) {
+                mCaches.get(i).evict();
+            }
+        }
+    }
+}
@@ -1,13 +1,11 @@
 package net.rmasoft.worldcupnews;
 
-import android.text.TextUtils;
+import android.support.annotation.VisibleForTesting;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -24,8 +22,27 @@ import java.util.List;
 final class QueryUtils {
 
     private static final String LOG_TAG = QueryUtils.class.getName();
-    private static final int HTTP_READ_TIMEOUT = 10000; /* milliseconds */
-    private static final int HTTP_CONNECT_TIMEOUT = 15000; /* milliseconds */
+
+    /**
+     * The Articles of one request, and whether some of them had to be dropped
+     * because the response was truncated, malformed or over the limits.
+     */
+    static final class Result {
+        final List<Article> articles;
+        final boolean partial;
+        /** True if reading the body failed, which leaves the connection in an unknown state */
+        final boolean failed;
+
+        Result(List<Article> articles, boolean partial) {
+            this(articles, partial, false);
+        }
+
+        Result(List<Article> articles, boolean partial, boolean failed) {
+            this.articles = articles;
+            this.partial = partial;
+            this.failed = failed;
+        }
+    }
 
     /**
      * Create a private constructor because no one should ever create a {@link QueryUtils} object.
@@ -36,101 +53,164 @@ final class QueryUtils {
     }
 
     /**
-     * Query the API and return a list of objects.
+     * Query the API and return a list of objects, keeping at most maxArticles of them
+     * and reading at most maxResponseBytes of the response.
+     * Both limits come from the max_articles and max_response_bytes resources.
      */
-    public static List<Article> fetchData(String requestUrl) {
+    public static Result fetchData(String requestUrl, int maxArticles, int maxResponseBytes) {
         // Create URL object
         URL url = createUrl(requestUrl);
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
-        try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem making the HTTP request.", e);
-        }
+        // Perform HTTP request to the URL and parse the JSON response while it streams in
+        Result result = makeHttpRequest(url, maxArticles, maxResponseBytes);
 
-        // Extract and return relevant fields from the JSON response and create a list of Objects
-        return extractArticlesFromJson(jsonResponse);
+        // Fold the near-duplicate headlines into a single row
+        return new Result(DuplicateHeadlines.collapse(result.articles), result.partial);
     }
 
     /**
      * Return a list of {@link Article} objects that has been built up from
-     * parsing a JSON response.
+     * parsing a JSON response as it is read from the stream.
+     * Articles parsed before a truncation or a malformed element are kept.
      */
-    private static ArrayList<Article> extractArticlesFromJson(String ArticleJSON) {
-
-        // If the JSON string is empty or null, then return early.
-        if (TextUtils.isEmpty(ArticleJSON)) {
-            return null;
-        }
+    @VisibleForTesting
+    static Result extractArticlesFromJson(InputStream inputStream, int maxArticles, int maxResponseBytes) {
 
         // Create an empty ArrayList that we can start adding Articles to
         ArrayList<Article> Articles = new ArrayList<>();
 
-        // Try to parse the SAMPLE_JSON_RESPONSE. If there's a problem with the way the JSON
-        // is formatted, a JSONException exception object will be thrown.
-        // Catch the exception so the app doesn't crash, and print the error message to the logs.
-        try {
-
-            // Create a JSONObject from the provided URL string
-            JSONObject baseJsonResponse = new JSONObject(ArticleJSON);
-            JSONObject resultsJsonObject = baseJsonResponse.getJSONObject("response");
+        // Stop reading after maxResponseBytes, so a huge body never makes it into the heap
+        JsonReader reader = new JsonReader(new InputStreamReader(
+                new BoundedInputStream(inputStream, maxResponseBytes), Charset.forName("UTF-8")));
 
-            // Extract the JSONArray associated with the key called "results",
-            // which represents a list of Articles.
-            JSONArray ArticleArray = resultsJsonObject.getJSONArray("results");
-
-            // For each Article in the ArticleArray, create an {@link Article} object
-            for (int i = 0; i < ArticleArray.length(); i++) {
-
-                // Get a single Article at position i within the list of Articles
-                JSONObject currentArticle = ArticleArray.getJSONObject(i);
-
-                // Extract the value for the key called "webTitle"
-                String webTitle = currentArticle.getString("webTitle");
-
-                // Extract the value for the key called "sectionName"
-                String sectionName = currentArticle.getString("sectionName");
-
-                // Extract the value for the key called "webPublicationDate"
-                String webPublicationDate = currentArticle.getString("webPublicationDate");
+        // If there's a problem with the way the JSON is formatted, or the body is cut,
+        // an exception will be thrown. Catch it so the app doesn't crash, keep what was
+        // parsed so far and print the error message to the logs.
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("response")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    // Only the "results" array, which represents a list of Articles, is needed
+                    if (!reader.nextName().equals("results")) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    boolean partial = false;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        if (Articles.size() >= maxArticles) {
+                            // More Articles than asked for, don't read the rest
+                            Log.w(LOG_TAG, "Response has more than " + maxArticles + " Articles.");
+                            return new Result(Articles, true);
+                        }
+
+                        // Add the new {@link Article} to the list of Articles.
+                        Article article = readArticle(reader);
+                        if (article != null) {
+                            Articles.add(article);
+                        } else {
+                            partial = true;
+                        }
+                    }
+                    return new Result(Articles, partial);
+                }
+                reader.endObject();
+            }
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            // If an error is thrown when executing any of the above statements in the "try" block,
+            // catch the exception here, so the app doesn't crash. Print a log message
+            // with the message from the exception.
+            // The rest of the body is in an unknown state, so the connection must not be reused.
+            Log.e(LOG_TAG, "Problem parsing the Article JSON results, kept " + Articles.size() + " Articles", e);
+            return new Result(Articles, true, true);
+        }
 
-                // Extract the value for the key called "url"
-                String url = currentArticle.getString("webUrl");
+        // The response has no "results" array
+        return new Result(Articles, false);
+    }
 
-                // For a given Article, extract the JSONArray associated with the
-                // key called "tags", which represents a list of all tags
-                // for that Article.
-                JSONArray tagsArray = currentArticle.getJSONArray("tags");
+    /**
+     * Read a single Article object from the "results" array.
+     * @return null if one of the required fields is missing
+     */
+    private static Article readArticle(JsonReader reader) throws IOException {
+        String webTitle = null;
+        String sectionName = null;
+        String webPublicationDate = null;
+        String url = null;
+        String contributor = "Not Available";
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "webTitle":
+                    webTitle = reader.nextString();
+                    break;
+                case "sectionName":
+                    sectionName = reader.nextString();
+                    break;
+                case "webPublicationDate":
+                    webPublicationDate = reader.nextString();
+                    break;
+                case "webUrl":
+                    url = reader.nextString();
+                    break;
+                case "tags":
+                    // The first tag corresponds to the Contributor
+                    String firstTag = readFirstTagTitle(reader);
+                    if (firstTag != null) {
+                        contributor = firstTag;
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
 
-                String contributor = "Not Available";
+        if (webTitle == null || sectionName == null || webPublicationDate == null || url == null) {
+            Log.w(LOG_TAG, "Skipping an Article with missing fields.");
+            return null;
+        }
 
-                if (tagsArray.length() > 0) {
-                    // Get first tags group at position 0 corresponding to Contributor
-                    JSONObject contributorObject = tagsArray.getJSONObject(0);
+        // Create a new {@link Article} object with the title, section, date, contributor
+        // and url from the JSON response.
+        return new Article(webTitle, sectionName, webPublicationDate, contributor, url);
+    }
 
-                    // Extract the value for the key called "webTitle" for Contributor
-                    contributor = contributorObject.getString("webTitle");
+    /**
+     * Return the "webTitle" of the first object of the "tags" array, or null if there's none.
+     */
+    private static String readFirstTagTitle(JsonReader reader) throws IOException {
+        String title = null;
+        reader.beginArray();
+        if (reader.hasNext()) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("webTitle") && reader.peek() == JsonToken.STRING) {
+                    title = reader.nextString();
+                } else {
+                    reader.skipValue();
                 }
-
-                // Create a new {@link Article} object with the magnitude, location, time,
-                // and url from the JSON response.
-                Article Article = new Article(webTitle, sectionName, webPublicationDate, contributor, url);
-
-                // Add the new {@link Article} to the list of Articles.
-                Articles.add(Article);
             }
-
-        } catch (JSONException e) {
-            // If an error is thrown when executing any of the above statements in the "try" block,
-            // catch the exception here, so the app doesn't crash. Print a log message
-            // with the message from the exception.
-            Log.e("QueryUtils", "Problem parsing the Article JSON results", e);
+            reader.endObject();
         }
-
-        // Return the list of Articles
-        return Articles;
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return title;
     }
 
     /**
@@ -147,64 +227,91 @@ final class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the Articles parsed from the response.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static Result makeHttpRequest(URL url, int maxArticles, int maxResponseBytes) {
+        Result result = new Result(null, false);
 
         // If the URL is null, then return early.
         if (url == null) {
-            return jsonResponse;
+            return result;
         }
 
         HttpURLConnection urlConnection = null;
         InputStream inputStream = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(HTTP_READ_TIMEOUT);
-            urlConnection.setConnectTimeout(HTTP_CONNECT_TIMEOUT);
-            urlConnection.setRequestMethod("GET");
+            urlConnection = HttpTransport.openConnection(url);
             urlConnection.connect();
 
             // If the request was successful (response code 200),
             // then read the input stream and parse the response.
             if (urlConnection.getResponseCode() == 200) {
                 inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+                result = extractArticlesFromJson(inputStream, maxArticles, maxResponseBytes);
+                if (result.failed) {
+                    // Cut mid-body, draining would only wait for the same timeout again
+                    HttpTransport.discard(urlConnection);
+                    urlConnection = null;
+                }
             } else {
                 Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
             }
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem retrieving the Article JSON results.", e);
+            // The socket may be half way through a response, don't give it back to the pool
+            HttpTransport.discard(urlConnection);
+            urlConnection = null;
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
-            }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
-                // the makeHttpRequest(URL url) method signature specifies than an IOException
-                // could be thrown.
-                inputStream.close();
-            }
+            // After a complete read or the Article cap, release the socket so the next request
+            // skips the TCP/TLS handshake
+            HttpTransport.release(urlConnection, inputStream);
         }
-        return jsonResponse;
+        return result;
     }
 
     /**
-     * Convert the {@link InputStream} into a String which contains the
-     * whole JSON response from the server.
+     * An {@link InputStream} failing with an IOException once more than maxBytes have been read.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        StringBuilder output = new StringBuilder();
-        if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
-            BufferedReader reader = new BufferedReader(inputStreamReader);
-            String line = reader.readLine();
-            while (line != null) {
-                output.append(line);
-                line = reader.readLine();
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private final long mMaxBytes;
+        private long mCount = 0;
+
+        BoundedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            mMaxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long read) throws IOException {
+            mCount += read;
+            if (mCount > mMaxBytes) {
+                throw new IOException("Response is larger than " + mMaxBytes + " bytes");
             }
         }
-        return output.toString();
     }
 }
@@ -0,0 +1,230 @@
+package net.rmasoft.worldcupnews;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Remembers which Articles the user has already opened.
+ * Each Article is tracked by a 64-bit hash of its webUrl, kept in a {@link LongHashSet}
+ * so a lookup from the adapter is O(1) and allocation free.
+ * The hashes are persisted in an append-only file, 8 bytes per opened Article. The file is only
+ * read from a background thread, until then every Article shows as unread.
+ * When the table is evicted, the next lookup schedules that read again in the background.
+ */
+final class ReadArticles implements TrimmableCache {
+
+    private static final String LOG_TAG = ReadArticles.class.getName();
+    private static final String FILE_NAME = "read_articles.bin";
+
+    private static ReadArticles sInstance;
+
+    private final File mFile;
+    /** Runs the appends and the background loads, in order */
+    private final Executor mExecutor;
+    private LongHashSet mHashes = new LongHashSet();
+    private boolean mLoaded = false;
+    private boolean mLoadScheduled = false;
+
+    /** Hashes queued for an append, not on disk yet, so an eviction must not drop them */
+    private final List<Long> mPendingAppends = new ArrayList<>();
+
+    private final Runnable mLoadTask = new Runnable() {
+        @Override
+        public void run() {
+            load();
+            synchronized (ReadArticles.this) {
+                mLoadScheduled = false;
+            }
+        }
+    };
+
+    /**
+     * The app uses the shared {@link #getInstance(Context)}, tests pass their own file and executor.
+     */
+    ReadArticles(File file, Executor executor) {
+        mFile = file;
+        mExecutor = executor;
+    }
+
+    static synchronized ReadArticles getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ReadArticles(new File(context.getApplicationContext().getFilesDir(), FILE_NAME),
+                    AsyncTask.SERIAL_EXECUTOR);
+            // Needed while the list is on screen, only dropped when memory is critical
+            MemoryBudget.getInstance().register(sInstance, MemoryBudget.TIER_WORKING);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Return a 64-bit hash (FNV-1a, then mixed) of the given Article URL.
+     */
+    static long hashUrl(String url) {
+        long hash = 0xcbf29ce484222325L;
+        if (url != null) {
+            for (int i = 0; i < url.length(); i++) {
+                hash ^= url.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        // Spread the bits so the low ones can be used directly as the table index
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == LongHashSet.EMPTY ? 1L : hash;
+    }
+
+    /**
+     * Read the persisted hashes from disk. Must be called from a background thread,
+     * the file is read without holding the lock so lookups from the UI thread never wait on it.
+     */
+    void load() {
+        synchronized (this) {
+            if (mLoaded) {
+                return;
+            }
+        }
+
+        LongHashSet hashes = readFile();
+
+        synchronized (this) {
+            if (mLoaded) {
+                return;
+            }
+            // Keep the Articles opened while the file was being read
+            hashes.addAll(mHashes);
+            mHashes = hashes;
+            mLoaded = true;
+        }
+    }
+
+    /**
+     * Return true if the Article with the given URL hash was opened before.
+     * Never touches the disk, returns false until {@link #load()} is done,
+     * and schedules that load on a background thread if the table was evicted.
+     */
+    synchronized boolean isRead(long urlHash) {
+        if (!mLoaded && !mLoadScheduled) {
+            // Queued behind the pending appends, so the file read back has all of them
+            mLoadScheduled = true;
+            mExecutor.execute(mLoadTask);
+        }
+        return mHashes.contains(urlHash);
+    }
+
+    /**
+     * Mark the Article with the given URL hash as read, appending it to the file if it's new.
+     */
+    synchronized void markRead(final long urlHash) {
+        // Before the file is loaded this can append a hash already on disk, reading it back dedupes it
+        if (!mHashes.add(urlHash)) {
+            return;
+        }
+        mPendingAppends.add(urlHash);
+
+        // Keep the disk write off the UI thread, the serial executor keeps appends in order
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                append(urlHash);
+                synchronized (ReadArticles.this) {
+                    mPendingAppends.remove(Long.valueOf(urlHash));
+                }
+            }
+        });
+    }
+
+    /**
+     * Number of tracked Articles.
+     */
+    synchronized int size() {
+        return mHashes.size();
+    }
+
+    @Override
+    public String getName() {
+        return "Read Articles";
+    }
+
+    @Override
+    public synchronized long getSizeInBytes() {
+        return mHashes.sizeInBytes();
+    }
+
+    /**
+     * Drop the table, it's read back from the file on the next {@link #load()}.
+     * The hashes still waiting for their append are kept, the file doesn't have them yet.
+     */
+    @Override
+    public synchronized void evict() {
+        mHashes = new LongHashSet();
+        for (long urlHash : mPendingAppends) {
+            mHashes.add(urlHash);
+        }
+        mLoaded = false;
+    }
+
+    private LongHashSet readFile() {
+        LongHashSet hashes = new LongHashSet();
+        if (!mFile.exists()) {
+            return hashes;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)));
+            while (true) {
+                long hash = in.readLong();
+                if (hash != LongHashSet.EMPTY) {
+                    hashes.add(hash);
+                }
+            }
+        } catch (EOFException e) {
+            // End of the file, or a partial entry from an interrupted append which we skip
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the read Articles.", e);
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the read Articles file.", e);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private void append(long urlHash) {
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new FileOutputStream(mFile, true));
+            out.writeLong(urlHash);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem saving the read Article.", e);
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Problem closing the read Articles file.", e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package net.rmasoft.worldcupnews;
+
+/**
+ * An in-process cache registered with the {@link MemoryBudget}, which can drop its content
+ * when memory runs low. Everything it holds must be cheap to rebuild or reload.
+ */
+interface TrimmableCache {
+
+    /**
+     * Name shown in the per-cache sizes, for debugging.
+     */
+    String getName();
+
+    /**
+     * Return an estimate of the heap held by the cache.
+     */
+    long getSizeInBytes();
+
+    /**
+     * Drop the cached content.
+     */
+    void evict();
+}
@@ -0,0 +1,37 @@
+package net.rmasoft.worldcupnews;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Counts the bytes allocated by the current thread, on JVMs exposing
+ * com.sun.management.ThreadMXBean. Tests using it are skipped elsewhere.
+ */
+final class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean mThreadBean;
+    private final long mThreadId = Thread.currentThread().getId();
+
+    private AllocationCounter(com.sun.management.ThreadMXBean threadBean) {
+        mThreadBean = threadBean;
+    }
+
+    /**
+     * Return a counter for the current thread, skipping the test if the JVM can't count.
+     */
+    static AllocationCounter forCurrentThread() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        return new AllocationCounter(threadBean);
+    }
+
+    /**
+     * Bytes allocated by the thread so far, subtract two readings to count a section.
+     */
+    long allocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(mThreadId);
+    }
+}
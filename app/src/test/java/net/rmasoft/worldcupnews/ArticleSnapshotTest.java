@@ -0,0 +1,67 @@
+package net.rmasoft.worldcupnews;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the snapshot format read by the widget.
+ */
+public class ArticleSnapshotTest {
+
+    @Test
+    public void headlinesRoundTrip() throws IOException {
+        List<ArticleSnapshot.Headline> headlines = read(encode(headlines(ArticleSnapshot.MAX_HEADLINES)));
+
+        assertEquals(ArticleSnapshot.MAX_HEADLINES, headlines.size());
+        assertEquals("World Cup headline 0 – as it happened", headlines.get(0).title);
+        assertEquals("https://www.theguardian.com/football/2018/jul/15/article-4", headlines.get(4).url);
+    }
+
+    @Test
+    public void otherVersionReadsAsEmpty() throws IOException {
+        byte[] snapshot = encode(headlines(3));
+        snapshot[3]++;
+
+        assertTrue(read(snapshot).isEmpty());
+    }
+
+    @Test(expected = EOFException.class)
+    public void truncatedSnapshotFails() throws IOException {
+        byte[] snapshot = encode(headlines(3));
+        byte[] truncated = new byte[snapshot.length / 2];
+        System.arraycopy(snapshot, 0, truncated, 0, truncated.length);
+
+        read(truncated);
+    }
+
+    static List<ArticleSnapshot.Headline> headlines(int count) {
+        List<ArticleSnapshot.Headline> headlines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            headlines.add(new ArticleSnapshot.Headline("World Cup headline " + i + " – as it happened",
+                    "https://www.theguardian.com/football/2018/jul/15/article-" + i));
+        }
+        return headlines;
+    }
+
+    static byte[] encode(List<ArticleSnapshot.Headline> headlines) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ArticleSnapshot.write(out, headlines);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    static List<ArticleSnapshot.Headline> read(byte[] snapshot) throws IOException {
+        return ArticleSnapshot.read(new DataInputStream(new ByteArrayInputStream(snapshot)));
+    }
+}
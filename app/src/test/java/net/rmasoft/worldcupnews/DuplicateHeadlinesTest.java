@@ -0,0 +1,116 @@
+package net.rmasoft.worldcupnews;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the near-duplicate headline grouping, and that signatures are reused across refreshes.
+ */
+public class DuplicateHeadlinesTest {
+
+    private static final String[] WORDS = {
+            "England", "Croatia", "France", "Belgium", "Kane", "Modric", "Southgate", "Mbappe",
+            "semi-final", "final", "penalties", "extra", "time", "squad", "fans", "Moscow",
+            "goal", "injury", "coach", "VAR", "keeper", "defence", "striker", "record",
+            "win", "lose", "draw", "stun", "edge", "crush", "reach", "exit"
+    };
+
+    @Test
+    public void liveBlogVariantsAreCollapsed() {
+        List<Article> articles = new ArrayList<>();
+        articles.add(article("England v Croatia: World Cup semi-final – live!", "live-1"));
+        articles.add(article("Kane wins the golden boot", "live-2"));
+        articles.add(article("England v Croatia: World Cup semi-final – as it happened", "live-3"));
+        articles.add(article("England v Croatia: World Cup semi-final - live", "live-4"));
+
+        List<Article> collapsed = DuplicateHeadlines.collapse(articles);
+
+        assertEquals(2, collapsed.size());
+        assertSame(articles.get(0), collapsed.get(0));
+        assertEquals(2, collapsed.get(0).getNearDuplicates().size());
+        assertSame(articles.get(1), collapsed.get(1));
+        assertTrue(collapsed.get(1).getNearDuplicates().isEmpty());
+    }
+
+    @Test
+    public void changedTitleIsHashedAgain() {
+        List<Article> first = new ArrayList<>();
+        first.add(article("France v Belgium: World Cup semi-final – live!", "retitle-1"));
+        first.add(article("Southgate praises his young squad", "retitle-2"));
+        assertEquals(2, DuplicateHeadlines.collapse(first).size());
+
+        // Same webUrl, new title: the cached signature of the old title must not be used
+        List<Article> refreshed = new ArrayList<>();
+        refreshed.add(article("France v Belgium: World Cup semi-final – live!", "retitle-1"));
+        refreshed.add(article("France v Belgium: World Cup semi-final – as it happened", "retitle-2"));
+        List<Article> collapsed = DuplicateHeadlines.collapse(refreshed);
+
+        assertEquals(1, collapsed.size());
+        assertEquals(1, collapsed.get(0).getNearDuplicates().size());
+    }
+
+    @Test
+    public void refreshOnlyHashesNewArticles() {
+        List<String> titles = new ArrayList<>();
+        titles.add("Southgate names his World Cup squad");
+        titles.add("Kane wins the golden boot");
+        titles.add("Modric voted player of the tournament");
+
+        int computed = DuplicateHeadlines.computedSignatures();
+        DuplicateHeadlines.collapse(articles(titles, "refresh-"));
+        assertEquals(computed + 3, DuplicateHeadlines.computedSignatures());
+
+        // Same Articles plus a new one, only the new one is hashed
+        titles.add("Mbappe becomes the youngest scorer in a final since Pele");
+        DuplicateHeadlines.collapse(articles(titles, "refresh-"));
+        assertEquals(computed + 4, DuplicateHeadlines.computedSignatures());
+    }
+
+    @Test
+    public void thousandArticlesWithUpdates() {
+        List<String> titles = titles(1000, 10);
+
+        List<Article> collapsed = DuplicateHeadlines.collapse(articles(titles, "thousand-"));
+
+        // Every tenth Article is an update of an earlier one and must be folded into it
+        assertTrue(collapsed.size() <= 1000 - 99);
+    }
+
+    /**
+     * Random headlines, every updateEvery-th one being an update of an earlier headline.
+     */
+    static List<String> titles(int count, int updateEvery) {
+        Random random = new Random(42);
+        List<String> titles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && i % updateEvery == 0) {
+                titles.add(titles.get(random.nextInt(titles.size())) + " – as it happened");
+            } else {
+                StringBuilder title = new StringBuilder();
+                for (int w = 0; w < 8; w++) {
+                    title.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                titles.add(title.toString().trim() + " " + i);
+            }
+        }
+        return titles;
+    }
+
+    static List<Article> articles(List<String> titles, String urlPrefix) {
+        List<Article> articles = new ArrayList<>();
+        for (int i = 0; i < titles.size(); i++) {
+            articles.add(article(titles.get(i), urlPrefix + i));
+        }
+        return articles;
+    }
+
+    private static Article article(String title, String id) {
+        return new Article(title, "Football", "2018-07-11T18:00:00Z", "Not Available",
+                "https://www.theguardian.com/football/" + id);
+    }
+}
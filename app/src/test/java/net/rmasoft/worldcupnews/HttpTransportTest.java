@@ -0,0 +1,173 @@
+package net.rmasoft.worldcupnews;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.security.KeyStore;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManagerFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link HttpTransport} reuses one TLS connection across requests,
+ * against a local HTTPS stand-in for the Guardian API counting its handshakes.
+ * This runs on the JDK's HttpURLConnection, it checks that release() leaves the connection
+ * reusable, not how Android's own HTTP stack pools it on a device.
+ */
+public class HttpTransportTest {
+
+    private static final int REQUESTS = 10;
+    private static final String BODY = "{\"response\":{\"status\":\"ok\",\"results\":[]}}";
+
+    private static SSLContext sSslContext;
+    private static SSLSocketFactory sDefaultSocketFactory;
+
+    private SSLServerSocket mServerSocket;
+    private ExecutorService mExecutor;
+    private final AtomicInteger mHandshakes = new AtomicInteger();
+
+    @BeforeClass
+    public static void setUpTls() throws Exception {
+        // Self-signed certificate for "localhost", trusted by the client side as well
+        KeyStore keyStore = KeyStore.getInstance("JKS");
+        InputStream in = HttpTransportTest.class.getClassLoader().getResourceAsStream("localhost.jks");
+        keyStore.load(in, "changeit".toCharArray());
+        in.close();
+
+        KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+        keyManagers.init(keyStore, "changeit".toCharArray());
+        TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagers.init(keyStore);
+
+        sSslContext = SSLContext.getInstance("TLS");
+        sSslContext.init(keyManagers.getKeyManagers(), trustManagers.getTrustManagers(), null);
+        sDefaultSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        HttpsURLConnection.setDefaultSSLSocketFactory(sSslContext.getSocketFactory());
+    }
+
+    @AfterClass
+    public static void restoreTls() {
+        HttpsURLConnection.setDefaultSSLSocketFactory(sDefaultSocketFactory);
+    }
+
+    @Before
+    public void startServer() throws IOException {
+        mServerSocket = (SSLServerSocket) sSslContext.getServerSocketFactory().createServerSocket(0);
+        mExecutor = Executors.newCachedThreadPool();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (true) {
+                        final SSLSocket socket = (SSLSocket) mServerSocket.accept();
+                        mExecutor.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                    }
+                } catch (IOException e) {
+                    // Server socket closed at the end of the test
+                }
+            }
+        });
+    }
+
+    @After
+    public void stopServer() throws IOException {
+        mServerSocket.close();
+        mExecutor.shutdownNow();
+    }
+
+    @Test
+    public void releasedConnectionsAreReused() throws IOException {
+        for (int i = 0; i < REQUESTS; i++) {
+            HttpURLConnection urlConnection = HttpTransport.openConnection(url());
+            urlConnection.connect();
+            assertEquals(200, urlConnection.getResponseCode());
+            InputStream inputStream = urlConnection.getInputStream();
+            assertEquals(BODY, readBody(inputStream));
+            HttpTransport.release(urlConnection, inputStream);
+        }
+
+        // Only the first request pays for the handshake
+        assertEquals(1, mHandshakes.get());
+    }
+
+    private URL url() throws IOException {
+        return new URL("https://localhost:" + mServerSocket.getLocalPort() + "/search");
+    }
+
+    private static String readBody(InputStream inputStream) throws IOException {
+        StringBuilder output = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        String line = reader.readLine();
+        while (line != null) {
+            output.append(line);
+            line = reader.readLine();
+        }
+        return output.toString();
+    }
+
+    /**
+     * Answer keep-alive requests on one socket until the client closes it.
+     */
+    private void serve(SSLSocket socket) {
+        try {
+            socket.startHandshake();
+            mHandshakes.incrementAndGet();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            OutputStream out = socket.getOutputStream();
+            byte[] body = BODY.getBytes("UTF-8");
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // Skip the request headers, a GET has no body
+                if (!line.isEmpty()) {
+                    continue;
+                }
+                out.write(("HTTP/1.1 200 OK\r\n"
+                        + "Content-Type: application/json\r\n"
+                        + "Content-Length: " + body.length + "\r\n"
+                        + "\r\n").getBytes("UTF-8"));
+                out.write(body);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        } finally {
+            close(socket);
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nothing to do
+        }
+    }
+}
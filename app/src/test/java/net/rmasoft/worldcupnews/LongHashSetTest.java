@@ -0,0 +1,95 @@
+package net.rmasoft.worldcupnews;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the table behind {@link ReadArticles}, and that it stays small and allocation free
+ * with 100k tracked URLs.
+ */
+public class LongHashSetTest {
+
+    private static final int TRACKED_URLS = 100000;
+
+    @Test
+    public void addAndContains() {
+        LongHashSet set = new LongHashSet();
+        long read = ReadArticles.hashUrl("https://www.theguardian.com/football/live/read");
+        long unread = ReadArticles.hashUrl("https://www.theguardian.com/football/live/unread");
+
+        assertTrue(set.add(read));
+        assertFalse(set.add(read));
+        assertTrue(set.contains(read));
+        assertFalse(set.contains(unread));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void addAllMergesWithoutDuplicates() {
+        LongHashSet first = new LongHashSet();
+        LongHashSet second = new LongHashSet();
+        for (int i = 0; i < 1000; i++) {
+            first.add(hash(i));
+            second.add(hash(i + 500));
+        }
+        first.addAll(second);
+
+        assertEquals(1500, first.size());
+        assertTrue(first.contains(hash(0)));
+        assertTrue(first.contains(hash(1499)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyMarkerIsRejected() {
+        new LongHashSet().add(LongHashSet.EMPTY);
+    }
+
+    @Test
+    public void hundredThousandUrlsStaySmall() {
+        LongHashSet set = new LongHashSet();
+        for (int i = 0; i < TRACKED_URLS; i++) {
+            set.add(hash(i));
+        }
+
+        assertEquals(TRACKED_URLS, set.size());
+        // 262144 slots of 8 bytes, about 21 bytes per tracked URL
+        assertTrue(set.sizeInBytes() <= 2 * 1024 * 1024);
+        assertTrue(set.contains(hash(TRACKED_URLS - 1)));
+        assertFalse(set.contains(hash(TRACKED_URLS)));
+    }
+
+    @Test
+    public void lookupsDoNotAllocate() {
+        AllocationCounter allocations = AllocationCounter.forCurrentThread();
+        LongHashSet set = new LongHashSet();
+        long[] hashes = new long[TRACKED_URLS];
+        for (int i = 0; i < TRACKED_URLS; i++) {
+            hashes[i] = hash(i);
+            set.add(hashes[i]);
+        }
+        lookUp(set, hashes);
+
+        long before = allocations.allocatedBytes();
+        int found = lookUp(set, hashes);
+        long allocated = allocations.allocatedBytes() - before;
+
+        assertEquals(TRACKED_URLS, found);
+        // Only the measuring call itself may allocate, nothing per lookup
+        assertTrue("Allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static int lookUp(LongHashSet set, long[] hashes) {
+        int found = 0;
+        for (long hash : hashes) {
+            if (set.contains(hash)) {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static long hash(int i) {
+        return ReadArticles.hashUrl("https://www.theguardian.com/football/2018/jul/11/article-" + i);
+    }
+}
@@ -0,0 +1,129 @@
+package net.rmasoft.worldcupnews;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that each trim level and the heap ceiling evict the right tiers, cheapest first.
+ */
+public class MemoryBudgetTest {
+
+    private MemoryBudget mBudget;
+    private FakeCache mDerived;
+    private FakeCache mPersisted;
+    private FakeCache mWorking;
+
+    @Before
+    public void setUp() {
+        mBudget = new MemoryBudget();
+        // Registered out of order, the budget keeps them sorted by tier
+        mWorking = register("working", 4000, MemoryBudget.TIER_WORKING);
+        mDerived = register("derived", 1000, MemoryBudget.TIER_DERIVED);
+        mPersisted = register("persisted", 2000, MemoryBudget.TIER_PERSISTED);
+    }
+
+    @Test
+    public void sizesAreListedInEvictionOrder() {
+        assertEquals(Arrays.asList("derived", "persisted", "working"),
+                new ArrayList<>(mBudget.getSizes().keySet()));
+        assertEquals(Long.valueOf(2000), mBudget.getSizes().get("persisted"));
+        assertEquals(7000, mBudget.getTotalSize());
+    }
+
+    @Test
+    public void uiHiddenEvictsDerivedData() {
+        mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertEquals(Long.valueOf(0), mBudget.getSizes().get("derived"));
+        assertEquals(6000, mBudget.getTotalSize());
+    }
+
+    @Test
+    public void backgroundEvictsPersistedCopies() {
+        mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        assertEquals(Long.valueOf(0), mBudget.getSizes().get("derived"));
+        assertEquals(Long.valueOf(0), mBudget.getSizes().get("persisted"));
+        assertEquals(4000, mBudget.getTotalSize());
+    }
+
+    @Test
+    public void completeEvictsEverything() {
+        mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+        assertEquals(0, mBudget.getTotalSize());
+        assertEquals(1, mWorking.mEvictions);
+    }
+
+    @Test
+    public void lowMemoryEvictsEverything() {
+        mBudget.onLowMemory();
+
+        assertEquals(0, mBudget.getTotalSize());
+    }
+
+    @Test
+    public void runningLowKeepsWorkingData() {
+        mBudget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(4000, mBudget.getTotalSize());
+        assertEquals(0, mWorking.mEvictions);
+    }
+
+    @Test
+    public void ceilingEvictsCheapestTiersFirst() {
+        // Dropping the derived tier is enough
+        mBudget.setHeapCeiling(6500);
+
+        assertEquals(6000, mBudget.getTotalSize());
+        assertEquals(1, mDerived.mEvictions);
+        assertEquals(0, mPersisted.mEvictions);
+
+        mBudget.setHeapCeiling(4500);
+
+        assertEquals(4000, mBudget.getTotalSize());
+        assertEquals(1, mPersisted.mEvictions);
+        assertEquals(0, mWorking.mEvictions);
+    }
+
+    private FakeCache register(String name, long size, int tier) {
+        FakeCache cache = new FakeCache(name, size);
+        mBudget.register(cache, tier);
+        return cache;
+    }
+
+    private static final class FakeCache implements TrimmableCache {
+        private final String mName;
+        private long mSize;
+        private int mEvictions = 0;
+
+        FakeCache(String name, long size) {
+            mName = name;
+            mSize = size;
+        }
+
+        @Override
+        public String getName() {
+            return mName;
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return mSize;
+        }
+
+        @Override
+        public void evict() {
+            mSize = 0;
+            mEvictions++;
+        }
+    }
+}
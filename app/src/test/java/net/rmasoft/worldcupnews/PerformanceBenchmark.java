@@ -0,0 +1,100 @@
+package net.rmasoft.worldcupnews;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Timings of the hot paths, printed rather than asserted as they depend on the host.
+ * Run by hand after removing the @Ignore, the regular tests only check sizes and allocations.
+ */
+@Ignore("Benchmark, run by hand")
+public class PerformanceBenchmark {
+
+    private static final int WARM_UP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    @Test
+    public void readArticlesLookup() {
+        final int trackedUrls = 100000;
+        final long[] hashes = new long[trackedUrls];
+        final LongHashSet set = new LongHashSet();
+        for (int i = 0; i < trackedUrls; i++) {
+            hashes[i] = ReadArticles.hashUrl("https://www.theguardian.com/football/2018/jul/11/article-" + i);
+            set.add(hashes[i]);
+        }
+
+        measure("LongHashSet lookup", trackedUrls, new Runnable() {
+            @Override
+            public void run() {
+                for (long hash : hashes) {
+                    set.contains(hash);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void collapseThousandArticles() {
+        final List<String> titles = DuplicateHeadlinesTest.titles(1000, 10);
+
+        // New URLs every round, so every signature is computed
+        measure("DuplicateHeadlines collapse, new Articles", titles.size(), new Runnable() {
+            private int mRound = 0;
+
+            @Override
+            public void run() {
+                DuplicateHeadlines.collapse(DuplicateHeadlinesTest.articles(titles, "cold-" + mRound++ + "-"));
+            }
+        });
+
+        // The same URLs and titles every round, so every signature comes from the cache
+        measure("DuplicateHeadlines collapse, cached signatures", titles.size(), new Runnable() {
+            @Override
+            public void run() {
+                DuplicateHeadlines.collapse(DuplicateHeadlinesTest.articles(titles, "cached-"));
+            }
+        });
+    }
+
+    @Test
+    public void decodeSnapshot() throws IOException {
+        final byte[] snapshot = ArticleSnapshotTest.encode(ArticleSnapshotTest.headlines(ArticleSnapshot.MAX_HEADLINES));
+
+        measure("ArticleSnapshot decode", 1000, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < 1000; i++) {
+                        ArticleSnapshotTest.read(snapshot);
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Run the operation until the JIT settles, then print the average time and allocation
+     * per item of the measured rounds.
+     */
+    private static void measure(String name, int itemsPerRound, Runnable round) {
+        AllocationCounter allocations = AllocationCounter.forCurrentThread();
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            round.run();
+        }
+
+        long allocatedBefore = allocations.allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            round.run();
+        }
+        long items = (long) itemsPerRound * MEASURED_ROUNDS;
+        long nanos = (System.nanoTime() - start) / items;
+        long bytes = (allocations.allocatedBytes() - allocatedBefore) / items;
+        System.out.println(name + ": " + nanos + "ns, " + bytes + " bytes allocated per item");
+    }
+}
@@ -0,0 +1,171 @@
+package net.rmasoft.worldcupnews;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that read Articles survive a restart of the app through the append-only file,
+ * and an eviction of the table, even while their append is still queued.
+ * The appends and loads are queued on an executor the test runs by hand.
+ */
+public class ReadArticlesTest {
+
+    private static final long OPENED = ReadArticles.hashUrl("https://www.theguardian.com/football/opened");
+    private static final long OTHER = ReadArticles.hashUrl("https://www.theguardian.com/football/other");
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mFile;
+    private final QueuedExecutor mExecutor = new QueuedExecutor();
+
+    @Before
+    public void setUp() {
+        mFile = new File(mFolder.getRoot(), "read_articles.bin");
+    }
+
+    @Test
+    public void readArticlesArePersisted() {
+        ReadArticles readArticles = new ReadArticles(mFile, mExecutor);
+        readArticles.markRead(OPENED);
+        mExecutor.runAll();
+
+        // As after a restart of the app
+        ReadArticles restarted = new ReadArticles(mFile, mExecutor);
+        assertFalse(restarted.isRead(OPENED));
+        restarted.load();
+
+        assertTrue(restarted.isRead(OPENED));
+        assertFalse(restarted.isRead(OTHER));
+        assertEquals(8, mFile.length());
+    }
+
+    @Test
+    public void articlesOpenedBeforeTheLoadAreKept() {
+        ReadArticles readArticles = new ReadArticles(mFile, mExecutor);
+        readArticles.markRead(OPENED);
+        mExecutor.runAll();
+
+        ReadArticles restarted = new ReadArticles(mFile, mExecutor);
+        restarted.markRead(OTHER);
+        restarted.load();
+
+        assertTrue(restarted.isRead(OPENED));
+        assertTrue(restarted.isRead(OTHER));
+    }
+
+    @Test
+    public void interruptedAppendIsSkipped() throws IOException {
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(mFile));
+        out.writeLong(OPENED);
+        // Half of an entry, as left by a process killed in the middle of an append
+        out.writeInt(42);
+        out.close();
+
+        ReadArticles readArticles = new ReadArticles(mFile, mExecutor);
+        readArticles.load();
+
+        assertTrue(readArticles.isRead(OPENED));
+        assertEquals(1, readArticles.size());
+    }
+
+    @Test
+    public void evictKeepsHashesNotWrittenYet() {
+        ReadArticles readArticles = new ReadArticles(mFile, mExecutor);
+        readArticles.load();
+        readArticles.markRead(OPENED);
+
+        // Trimmed before the append ran, the file doesn't have the hash yet
+        readArticles.evict();
+        readArticles.load();
+        assertTrue(readArticles.isRead(OPENED));
+
+        // And it still reaches the file once the append runs
+        mExecutor.runAll();
+        ReadArticles restarted = new ReadArticles(mFile, mExecutor);
+        restarted.load();
+        assertTrue(restarted.isRead(OPENED));
+    }
+
+    @Test
+    public void evictedTableIsReloadedInTheBackground() {
+        ReadArticles readArticles = new ReadArticles(mFile, mExecutor);
+        readArticles.markRead(OTHER);
+        mExecutor.runAll();
+        readArticles.load();
+
+        readArticles.markRead(OPENED);
+        readArticles.evict();
+
+        // Lookups don't touch the file, they queue a single load behind the pending append
+        assertTrue(readArticles.isRead(OPENED));
+        assertFalse(readArticles.isRead(OTHER));
+        assertFalse(readArticles.isRead(OTHER));
+        assertEquals(2, mExecutor.pending());
+
+        mExecutor.runAll();
+        assertTrue(readArticles.isRead(OTHER));
+        assertTrue(readArticles.isRead(OPENED));
+        assertEquals(0, mExecutor.pending());
+    }
+
+    @Test
+    public void trimFromTheMemoryBudget() {
+        MemoryBudget budget = new MemoryBudget();
+        ReadArticles readArticles = new ReadArticles(mFile, mExecutor);
+        budget.register(readArticles, MemoryBudget.TIER_WORKING);
+        readArticles.load();
+        for (int i = 0; i < 1000; i++) {
+            readArticles.markRead(ReadArticles.hashUrl("https://www.theguardian.com/football/" + i));
+        }
+        mExecutor.runAll();
+        readArticles.markRead(OPENED);
+        long loadedSize = budget.getTotalSize();
+
+        budget.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+
+        // Back to an empty table holding only the hash whose append is still queued
+        assertTrue(budget.getTotalSize() < loadedSize);
+        assertEquals(1, readArticles.size());
+        assertTrue(readArticles.isRead(OPENED));
+
+        mExecutor.runAll();
+        assertEquals(1001, readArticles.size());
+    }
+
+    /**
+     * Holds the submitted tasks until the test runs them.
+     */
+    private static final class QueuedExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            mTasks.add(task);
+        }
+
+        int pending() {
+            return mTasks.size();
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+}